@@ -0,0 +1,160 @@
+package com.chriniko.phaser_stampedlock_and_varhandle;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Percentage;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Custom JFR events emitted by the tutorials, so runs can be profiled offline, eg:
+ * <pre>
+ *     java -XX:StartFlightRecording=filename=run.jfr -Dbenchmark.console=false ...
+ * </pre>
+ * When nobody is recording, {@code commit()} is close to a no-op.
+ * <p>
+ * Note: JFR exists since OpenJDK 8u262 / Java 11, on older runtimes {@link #JFR} is false and the tutorials must not
+ * touch the event classes (they would fail with NoClassDefFoundError).
+ */
+public class BenchmarkEvents {
+
+    /**
+     * Note: console printing perturbs the measurements (eg: one line per ForkJoin leaf), so it can be
+     * turned off with {@code -Dbenchmark.console=false} and the JFR events used instead.
+     */
+    public static final boolean CONSOLE = Boolean.parseBoolean(System.getProperty("benchmark.console", "true"));
+
+    public static final boolean JFR = jfrAvailable();
+
+    private BenchmarkEvents() {
+    }
+
+    private static boolean jfrAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event", false, BenchmarkEvents.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Runs {@code run} within a FieldAccessRun event.
+     * <p>
+     * Note: the Java 9+ classes are compiled with {@code --release 9}, which has no jdk.jfr, so they record through here.
+     */
+    static void fieldAccessRun(String accessType, long operations, Runnable run) {
+        FieldAccessRunEvent event = JFR ? new FieldAccessRunEvent() : null;
+        if (event != null) event.begin();
+        try {
+            run.run();
+        } finally {
+            if (event != null) event.end();
+            if (event != null && event.shouldCommit()) {
+                event.accessType = accessType;
+                event.operations = operations;
+                event.commit();
+            }
+        }
+    }
+
+    // ---
+
+    @Name("com.chriniko.CojoinerTrial")
+    @Label("Cojoiner Trial")
+    @Description("One start-together trial of the cojoined tasks")
+    @Category({"Benchmark", "Phaser"})
+    @StackTrace(false) // Note: committed once per trial, a stack walk each time would perturb the trials.
+    static class CojoinerTrialEvent extends Event {
+
+        @Label("Cojoiner Type")
+        String cojoinerType;
+
+        @Label("Parties")
+        int parties;
+
+        @Label("Max Skew")
+        @Description("Latest task start time minus earliest task start time")
+        @Timespan(Timespan.NANOSECONDS)
+        long maxSkew;
+
+        @Label("Total Skew")
+        @Description("Sum of every task start time minus earliest task start time")
+        @Timespan(Timespan.NANOSECONDS)
+        long totalSkew;
+    }
+
+    @Name("com.chriniko.PositionTestRun")
+    @Label("Position Test Run")
+    @Description("One thread of a PositionTest run")
+    @Category({"Benchmark", "VarHandle"})
+    static class PositionTestRunEvent extends Event {
+
+        @Label("Updater")
+        String updater;
+
+        @Label("Operation")
+        String operation;
+
+        @Label("Operation Count")
+        long count;
+
+        @Label("CPU / Elapsed")
+        @Percentage
+        double cpuRatio;
+
+        @Label("User/System Split")
+        @Description("False when the run had too little cpu time to split it, user and system ratios are not measured then")
+        boolean userSystemSplit;
+
+        @Label("User CPU / Elapsed")
+        @Percentage
+        double userRatio;
+
+        @Label("System CPU / Elapsed")
+        @Percentage
+        double systemRatio;
+
+        @Label("Allocated Bytes")
+        @DataAmount
+        long allocatedBytes;
+
+        @Label("Context Switches")
+        long contextSwitches;
+    }
+
+    @Name("com.chriniko.ForkJoinLeaf")
+    @Label("ForkJoin Leaf")
+    @Description("Execution of one ForkJoin leaf task")
+    @Category({"Benchmark", "ForkJoin"})
+    @StackTrace(false) // Note: committed once per leaf, a stack walk each time would perturb the leaves.
+    static class ForkJoinLeafEvent extends Event {
+
+        @Label("Size")
+        int size;
+
+        @Label("Blocked On IO")
+        boolean blockedOnIO;
+
+        @Label("Sum")
+        long sum;
+    }
+
+    @Name("com.chriniko.FieldAccessRun")
+    @Label("Field Access Run")
+    @Description("One field get and set run of FieldReadingTest")
+    @Category({"Benchmark", "VarHandle"})
+    static class FieldAccessRunEvent extends Event {
+
+        @Label("Access Type")
+        String accessType;
+
+        @Label("Operations")
+        long operations;
+    }
+
+}
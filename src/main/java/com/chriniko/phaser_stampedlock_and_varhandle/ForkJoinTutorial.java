@@ -2,8 +2,11 @@ package com.chriniko.phaser_stampedlock_and_varhandle;
 
 import com.google.common.collect.Lists;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.LongStream;
@@ -15,13 +18,22 @@ public class ForkJoinTutorial {
         // ---
 
         for (int runs = 0; runs < 3; runs++) {
+            long probeStartTime = System.nanoTime();
+            Map<Thread, ThreadResourceProbe> probes = startWorkerProbes();
+
             long startTime = System.currentTimeMillis();
             List<Integer> numbers = IntStream.rangeClosed(1, 10_000_000).boxed().collect(Collectors.toList());
             ForkJoinPool.commonPool().invoke(new BigListAdditionRecursiveAction(numbers));
             System.out.println("\nrun: " + (runs + 1) + ", total time in ms: " + (System.currentTimeMillis() - startTime));
+
+            stopWorkerProbes(probes, probeStartTime);
         }
 
         System.out.println();
+        if (BenchmarkEvents.CONSOLE) {
+            BigListAdditionRecursiveAction.LEAF_USAGE.print();
+            System.out.println();
+        }
 
 
         // ---
@@ -36,6 +48,41 @@ public class ForkJoinTutorial {
     }
 
 
+    /**
+     * Note: the common pool workers are probed once per run, from here, as a probe costs about as much as a leaf.
+     * Leaves run by the invoking thread itself are not counted, its probe would include building the list too.
+     */
+    private static Map<Thread, ThreadResourceProbe> startWorkerProbes() {
+        Map<Thread, ThreadResourceProbe> probes = new HashMap<>();
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (isCommonPoolWorker(thread)) {
+                probes.put(thread, ThreadResourceProbe.start(thread));
+            }
+        }
+        return probes;
+    }
+
+    private static boolean isCommonPoolWorker(Thread thread) {
+        return thread instanceof ForkJoinWorkerThread
+                && ((ForkJoinWorkerThread) thread).getPool() == ForkJoinPool.commonPool();
+    }
+
+    private static void stopWorkerProbes(Map<Thread, ThreadResourceProbe> probes, long probeStartTime) {
+        for (Map.Entry<Thread, LongAdder> leafNumbers : BigListAdditionRecursiveAction.LEAF_NUMBERS.entrySet()) {
+            Thread worker = leafNumbers.getKey();
+            long numbers = leafNumbers.getValue().sumThenReset();
+            if (numbers == 0 || !worker.isAlive() || !isCommonPoolWorker(worker)) {
+                continue;
+            }
+
+            ThreadResourceProbe probe = probes.get(worker);
+            if (probe == null) { // Note: worker spawned during the run.
+                probe = ThreadResourceProbe.startedAfter(worker, probeStartTime);
+            }
+            BigListAdditionRecursiveAction.LEAF_USAGE.add(probe.stop(numbers));
+        }
+    }
+
     // ---
 
     static class BigListAdditionRecursiveAction extends RecursiveAction {
@@ -44,6 +91,11 @@ public class ForkJoinTutorial {
 
         private static final int PARTITION_SIZE = 5000;
 
+        static final ThreadResourceProbe.Aggregate LEAF_USAGE = new ThreadResourceProbe.Aggregate("leaf workers");
+
+        // Note: numbers summed by each thread, per run.
+        static final ConcurrentMap<Thread, LongAdder> LEAF_NUMBERS = new ConcurrentHashMap<>();
+
         private final List<Integer> numbers;
 
         BigListAdditionRecursiveAction(List<Integer> numbers) {
@@ -61,15 +113,35 @@ public class ForkJoinTutorial {
                 ForkJoinTask.invokeAll(tasks);
             } else {
 
+                BenchmarkEvents.ForkJoinLeafEvent event = BenchmarkEvents.JFR ? new BenchmarkEvents.ForkJoinLeafEvent() : null;
+                if (event != null) event.begin();
+
+                RandomWaiter randomWaiter = new RandomWaiter();
                 try {
-                    RandomWaiter randomWaiter = new RandomWaiter();
                     ForkJoinPool.managedBlock(randomWaiter);
                 } catch (InterruptedException e) {
                     throw new CancellationException("interrupted");
                 }
 
                 Long sum = numbers.stream().map(Long::valueOf).reduce(0L, Long::sum);
-                System.out.println(Thread.currentThread().getName() + " ---  sum is: " + sum);
+                if (event != null) event.end();
+
+                LongAdder leafNumbers = LEAF_NUMBERS.get(Thread.currentThread());
+                if (leafNumbers == null) {
+                    leafNumbers = LEAF_NUMBERS.computeIfAbsent(Thread.currentThread(), thread -> new LongAdder());
+                }
+                leafNumbers.add(numbers.size());
+
+                if (BenchmarkEvents.CONSOLE) {
+                    System.out.println(Thread.currentThread().getName() + " ---  sum is: " + sum);
+                }
+
+                if (event != null && event.shouldCommit()) {
+                    event.size = numbers.size();
+                    event.blockedOnIO = randomWaiter.isWaitingForIO();
+                    event.sum = sum;
+                    event.commit();
+                }
             }
         }
 
@@ -81,7 +153,7 @@ public class ForkJoinTutorial {
             public boolean block() throws InterruptedException {
                 synchronized (WAIT) {
                     if (!isReleasable()) {
-                        System.out.println(Thread.currentThread().getName() + " --- will wait for IO...");
+                        if (BenchmarkEvents.CONSOLE) System.out.println(Thread.currentThread().getName() + " --- will wait for IO...");
                         WAIT.wait(500);
                     }
                 }
@@ -92,6 +164,10 @@ public class ForkJoinTutorial {
             public boolean isReleasable() {
                 return !waitForIO;
             }
+
+            boolean isWaitingForIO() {
+                return waitForIO;
+            }
         }
     }
 
@@ -172,14 +172,28 @@ public class PhaserTutorial {
 
     static class CojoinedTasksTester {
 
-        private static final ExecutorService pool = Executors.newCachedThreadPool();
+        private static final int TRIALS = 20_000;
+
+        // Note: fixed and prestarted workers, so that each one is probed once around all the trials of a cojoiner.
+        private static final List<Thread> workers = new CopyOnWriteArrayList<>();
+        private static final ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                PARTIES, PARTIES, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread worker = new Thread(runnable, "cojoined-worker-" + workers.size());
+                    workers.add(worker);
+                    return worker;
+                });
         private final static LongAdder totalTests = new LongAdder();
 
+        static {
+            pool.prestartAllCoreThreads();
+        }
+
 
         public static void runTest() {
             for (int i = 0; i < 20; i++) {
                 testAll();
-                System.out.println();
+                if (BenchmarkEvents.CONSOLE) System.out.println();
             }
             shutdown();
         }
@@ -203,20 +217,32 @@ public class PhaserTutorial {
             LongAccumulator max  = new LongAccumulator((left, right) -> {
                 if (left > right) return left; else return right;
             }, 0);
+            ThreadResourceProbe.Aggregate usage = new ThreadResourceProbe.Aggregate(supp.get().getClass().getSimpleName());
 
+            List<ThreadResourceProbe> probes = workers.stream()
+                    .map(ThreadResourceProbe::start)
+                    .collect(Collectors.toList());
 
-            for (int i=0; i< 20_000; i++) {
+            for (int i=0; i< TRIALS; i++) {
                 Cojoiner cojoiner = supp.get();
                 test(cojoiner, total, max);
             }
 
-            System.out.printf(Locale.US, "%s: max = %,d, total=%,d%n",
-                    supp.get().getClass().getSimpleName(),
-                    max.longValue(), total.longValue());
+            probes.forEach(probe -> usage.add(probe.stop(TRIALS)));
+
+            if (BenchmarkEvents.CONSOLE) {
+                System.out.printf(Locale.US, "%s: max = %,d, total=%,d%n",
+                        supp.get().getClass().getSimpleName(),
+                        max.longValue(), total.longValue());
+                usage.print();
+            }
         }
 
         private static void test(Cojoiner cojoiner, LongAdder total, LongAccumulator max) {
 
+            BenchmarkEvents.CojoinerTrialEvent event = BenchmarkEvents.JFR ? new BenchmarkEvents.CojoinerTrialEvent() : null;
+            if (event != null) event.begin();
+
             List<CojoinedTask> cojoinedTasks = IntStream.range(0, PARTIES)
                     .boxed()
                     .map(idx -> new CojoinedTask(() -> cojoiner.runWaiter(), totalTests::increment))
@@ -245,12 +271,25 @@ public class PhaserTutorial {
             // Note: gather metrics...
             long min = cojoinedTasks.stream().mapToLong(e -> e.getStartTime()).min().getAsLong();
 
+            long trialMax = 0;
+            long trialTotal = 0;
             for (CojoinedTask cojoinedTask : cojoinedTasks) {
                 long diff = cojoinedTask.getStartTime() - min;
                 max.accumulate(diff);
                 total.add(diff);
+
+                trialMax = Math.max(trialMax, diff);
+                trialTotal += diff;
             }
 
+            if (event != null) event.end();
+            if (event != null && event.shouldCommit()) {
+                event.cojoinerType = cojoiner.getClass().getSimpleName();
+                event.parties = PARTIES;
+                event.maxSkew = trialMax;
+                event.totalSkew = trialTotal;
+                event.commit();
+            }
 
         }
 
@@ -0,0 +1,33 @@
+package com.chriniko.phaser_stampedlock_and_varhandle;
+
+class Position {
+
+    volatile double[] xy = new double[2]; // Note: package private, so that the updaters can look it up.
+
+    private final PositionUpdater updater;
+
+    Position(double x, double y) {
+        this(x, y, PositionUpdaters.preferred());
+    }
+
+    Position(double x, double y, PositionUpdater updater) {
+        this.updater = updater;
+        xy[0] = x;
+        xy[1] = y;
+    }
+
+    public void moveBy(double deltaX, double deltaY) {
+        double[] current;
+        double[] next = new double[2];
+        do {
+            current = xy;
+            next[0] = current[0] + deltaX;
+            next[1] = current[1] + deltaY;
+        } while (!updater.compareAndSet(this, current, next));
+    }
+
+    public double distanceFromOrigin() {
+        double[] current = xy;
+        return Math.hypot(current[0], current[1]);
+    }
+}
@@ -0,0 +1,16 @@
+package com.chriniko.phaser_stampedlock_and_varhandle;
+
+/**
+ * Atomic update engine of {@link Position#xy}.
+ * <p>
+ * Note: the implementation is picked per runtime by {@link PositionUpdaters}, which is a multi-release class
+ * (Java 8: sun.misc.Unsafe CAS, Java 9+: VarHandle CAS).
+ */
+interface PositionUpdater {
+
+    boolean compareAndSet(Position position, double[] expected, double[] next);
+
+    default String name() {
+        return getClass().getSimpleName();
+    }
+}
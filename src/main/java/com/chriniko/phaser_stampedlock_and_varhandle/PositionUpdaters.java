@@ -0,0 +1,23 @@
+package com.chriniko.phaser_stampedlock_and_varhandle;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Java 8 version, on Java 9+ runtimes the one under {@code META-INF/versions/9} is loaded instead.
+ */
+final class PositionUpdaters {
+
+    private static final PositionUpdater UNSAFE = new UnsafePositionUpdater();
+
+    private PositionUpdaters() {
+    }
+
+    static PositionUpdater preferred() {
+        return UNSAFE;
+    }
+
+    static List<PositionUpdater> available() {
+        return Collections.singletonList(UNSAFE);
+    }
+}
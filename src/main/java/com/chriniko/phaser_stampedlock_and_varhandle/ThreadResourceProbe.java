@@ -0,0 +1,337 @@
+package com.chriniko.phaser_stampedlock_and_varhandle;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per thread resource probe, replaces the ThreadMXBean bookkeeping that every benchmark thread used to copy.
+ * <p>
+ * Usage, from the probed thread:
+ * <pre>
+ *     ThreadResourceProbe probe = ThreadResourceProbe.start();
+ *     ... work ...
+ *     ThreadResourceProbe.Usage usage = probe.stop(operations);
+ * </pre>
+ * or from any thread with {@link #start(Thread)}, eg: once per pooled worker around a whole batch of tasks.
+ * <p>
+ * Note: the probe only reads counters at start and stop, so nothing is added to the measured loop itself. Still, each
+ * start/stop costs some microseconds, so do not probe work that is that short.
+ */
+class ThreadResourceProbe {
+
+    private static final ThreadMXBean tmbean = ManagementFactory.getThreadMXBean();
+
+    private static final com.sun.management.ThreadMXBean allocationTmbean = allocationTmbean();
+
+    private static final File THREAD_STATUS = new File("/proc/thread-self/status");
+
+    private static final boolean THREAD_STATUS_SUPPORTED = THREAD_STATUS.canRead();
+
+    /**
+     * Note: user time is only accounted per clock tick (10ms on most Linux kernels), so below this much cpu time the
+     * user/system split of a probe is mostly rounding error and is not reported.
+     */
+    static final long MIN_USER_SYSTEM_SPLIT_CPU_TIME = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final long threadId;
+    private final boolean currentThread;
+    private final long startTime;
+    private final long startCpuTime;
+    private final long startUserTime;
+    private final long startAllocatedBytes;
+    private final long startContextSwitches;
+
+    private ThreadResourceProbe(Thread thread) {
+        threadId = thread.getId();
+        currentThread = thread == Thread.currentThread();
+
+        // Note: the cpu time window must lie within the elapsed time window, or short probes report c/e > 100%.
+        startContextSwitches = contextSwitches();
+        startAllocatedBytes = allocatedBytes(threadId);
+        startUserTime = userTime();
+        startTime = System.nanoTime();
+        startCpuTime = cpuTime();
+    }
+
+    private ThreadResourceProbe(Thread thread, long startTime) {
+        threadId = thread.getId();
+        currentThread = thread == Thread.currentThread();
+
+        // Note: the thread did not exist at startTime, so all of its (cumulative) counters are since then.
+        startContextSwitches = 0;
+        startAllocatedBytes = 0;
+        startUserTime = 0;
+        this.startTime = startTime;
+        startCpuTime = 0;
+    }
+
+    static ThreadResourceProbe start() {
+        return new ThreadResourceProbe(Thread.currentThread());
+    }
+
+    static ThreadResourceProbe start(Thread thread) {
+        return new ThreadResourceProbe(thread);
+    }
+
+    /**
+     * For a thread started after {@code startTime} (a {@link System#nanoTime()}), eg: a pool worker spawned on demand
+     * while its pool was probed. Not for the current thread, its kernel context switches are not cumulative from 0.
+     */
+    static ThreadResourceProbe startedAfter(Thread thread, long startTime) {
+        if (thread == Thread.currentThread()) {
+            throw new IllegalArgumentException("current thread started before the probe");
+        }
+        return new ThreadResourceProbe(thread, startTime);
+    }
+
+    Usage stop(long operations) {
+        long cpuTime = cpuTime() - startCpuTime;
+        long elapsedTime = System.nanoTime() - startTime;
+        long userTime = userTime() - startUserTime;
+        long allocatedBytes = allocatedBytes(threadId);
+        long contextSwitches = contextSwitches();
+
+        return new Usage(
+                operations,
+                elapsedTime,
+                cpuTime,
+                userTime,
+                allocatedBytes < 0 || startAllocatedBytes < 0 ? -1 : allocatedBytes - startAllocatedBytes,
+                contextSwitches < 0 || startContextSwitches < 0 ? -1 : contextSwitches - startContextSwitches
+        );
+    }
+
+    private long cpuTime() {
+        return currentThread ? tmbean.getCurrentThreadCpuTime() : tmbean.getThreadCpuTime(threadId);
+    }
+
+    private long userTime() {
+        return currentThread ? tmbean.getCurrentThreadUserTime() : tmbean.getThreadUserTime(threadId);
+    }
+
+    /**
+     * Note: on Linux the voluntary + nonvoluntary context switches of the kernel are used for the current thread,
+     * otherwise we estimate them with the times the thread blocked or waited (so preemptions are not counted).
+     */
+    private long contextSwitches() {
+        if (currentThread && THREAD_STATUS_SUPPORTED) {
+            return kernelContextSwitches();
+        }
+
+        ThreadInfo threadInfo = tmbean.getThreadInfo(threadId);
+        return threadInfo == null ? -1 : threadInfo.getBlockedCount() + threadInfo.getWaitedCount();
+    }
+
+    /**
+     * Note: read through a FileInputStream, unlike Files.readAllLines (an interruptible channel) it does not fail when
+     * the thread gets interrupted, eg: PositionTest interrupts its threads as soon as the test stops.
+     */
+    private static long kernelContextSwitches() {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(THREAD_STATUS), StandardCharsets.US_ASCII))) {
+
+            long switches = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("voluntary_ctxt_switches:") || line.startsWith("nonvoluntary_ctxt_switches:")) {
+                    switches += Long.parseLong(line.substring(line.indexOf(':') + 1).trim());
+                }
+            }
+            return switches;
+        } catch (IOException | NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // ---
+
+    private static com.sun.management.ThreadMXBean allocationTmbean() {
+        if (!(tmbean instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) tmbean;
+        if (!bean.isThreadAllocatedMemorySupported()) {
+            return null;
+        }
+        if (!bean.isThreadAllocatedMemoryEnabled()) {
+            bean.setThreadAllocatedMemoryEnabled(true);
+        }
+        return bean;
+    }
+
+    private static long allocatedBytes(long threadId) {
+        return allocationTmbean == null ? -1 : allocationTmbean.getThreadAllocatedBytes(threadId);
+    }
+
+    // ---
+
+    /**
+     * Resources used by one thread between {@link #start()} and {@link #stop(long)}, -1 when not supported.
+     */
+    static class Usage {
+
+        private final long operations;
+        private final long elapsedTime;
+        private final long cpuTime;
+        private final long userTime;
+        private final long allocatedBytes;
+        private final long contextSwitches;
+
+        Usage(long operations, long elapsedTime, long cpuTime, long userTime, long allocatedBytes, long contextSwitches) {
+            this.operations = operations;
+            this.elapsedTime = elapsedTime;
+            this.cpuTime = cpuTime;
+            this.userTime = userTime;
+            this.allocatedBytes = allocatedBytes;
+            this.contextSwitches = contextSwitches;
+        }
+
+        public long getOperations() {
+            return operations;
+        }
+
+        public long getElapsedTime() {
+            return elapsedTime;
+        }
+
+        public long getCpuTime() {
+            return cpuTime;
+        }
+
+        public long getUserTime() {
+            return userTime;
+        }
+
+        /**
+         * Note: clamped at 0, cpu time is exact but user time is tick granular.
+         */
+        public long getSystemTime() {
+            return Math.max(0, cpuTime - userTime);
+        }
+
+        public boolean hasUserSystemSplit() {
+            return cpuTime >= MIN_USER_SYSTEM_SPLIT_CPU_TIME;
+        }
+
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        public long getContextSwitches() {
+            return contextSwitches;
+        }
+
+        public double cpuRatio() {
+            return ratio(cpuTime, elapsedTime);
+        }
+
+        /**
+         * -1 when the probe is too short for a user/system split, see {@link #hasUserSystemSplit()}.
+         */
+        public double userRatio() {
+            return hasUserSystemSplit() ? ratio(Math.min(userTime, cpuTime), elapsedTime) : -1;
+        }
+
+        /**
+         * -1 when the probe is too short for a user/system split, see {@link #hasUserSystemSplit()}.
+         */
+        public double systemRatio() {
+            return hasUserSystemSplit() ? ratio(getSystemTime(), elapsedTime) : -1;
+        }
+
+        public double allocatedBytesPerOperation() {
+            return allocatedBytes < 0 ? -1 : ratio(allocatedBytes, operations);
+        }
+    }
+
+    // ---
+
+    /**
+     * Thread safe sum of the usages of many threads and runs (eg: all the REPEATS of a test).
+     */
+    static class Aggregate {
+
+        private final String name;
+
+        private final LongAdder probes = new LongAdder();
+        private final LongAdder operations = new LongAdder();
+        private final LongAdder elapsedTime = new LongAdder();
+        private final LongAdder cpuTime = new LongAdder();
+
+        // Note: only the probes long enough for a user/system split.
+        private final LongAdder splitProbes = new LongAdder();
+        private final LongAdder splitElapsedTime = new LongAdder();
+        private final LongAdder splitCpuTime = new LongAdder();
+        private final LongAdder splitUserTime = new LongAdder();
+
+        // Note: only the probes where the counter is supported.
+        private final LongAdder allocationOperations = new LongAdder();
+        private final LongAdder allocatedBytes = new LongAdder();
+        private final LongAdder contextSwitchProbes = new LongAdder();
+        private final LongAdder contextSwitches = new LongAdder();
+
+        Aggregate(String name) {
+            this.name = name;
+        }
+
+        void add(Usage usage) {
+            probes.increment();
+            operations.add(usage.getOperations());
+            elapsedTime.add(usage.getElapsedTime());
+            cpuTime.add(usage.getCpuTime());
+
+            if (usage.hasUserSystemSplit()) {
+                splitProbes.increment();
+                splitElapsedTime.add(usage.getElapsedTime());
+                splitCpuTime.add(usage.getCpuTime());
+                splitUserTime.add(Math.min(usage.getUserTime(), usage.getCpuTime()));
+            }
+            if (usage.getAllocatedBytes() >= 0) {
+                allocationOperations.add(usage.getOperations());
+                allocatedBytes.add(usage.getAllocatedBytes());
+            }
+            if (usage.getContextSwitches() >= 0) {
+                contextSwitchProbes.increment();
+                contextSwitches.add(usage.getContextSwitches());
+            }
+        }
+
+        void print() {
+            String split = "n/a (probes too short)";
+            if (splitProbes.sum() > 0) {
+                long splitElapsedTime = this.splitElapsedTime.sum();
+                long splitCpuTime = this.splitCpuTime.sum();
+                long splitUserTime = this.splitUserTime.sum();
+                split = String.format(Locale.US, "u/e=%.0f%%, s/e=%.0f%%",
+                        ratio(splitUserTime, splitElapsedTime) * 100,
+                        ratio(splitCpuTime - splitUserTime, splitElapsedTime) * 100);
+            }
+
+            System.out.printf(Locale.US,
+                    "%s: probes=%,d, ops=%,d, c/e=%.0f%%, %s, bytes/op=%,.2f, context switches/probe=%,.2f%n",
+                    name,
+                    probes.sum(),
+                    operations.sum(),
+                    ratio(cpuTime.sum(), elapsedTime.sum()) * 100,
+                    split,
+                    ratio(allocatedBytes.sum(), allocationOperations.sum()),
+                    ratio(contextSwitches.sum(), contextSwitchProbes.sum())
+            );
+        }
+    }
+
+    private static double ratio(long dividend, long divisor) {
+        return divisor == 0 ? 0 : (double) dividend / divisor;
+    }
+}
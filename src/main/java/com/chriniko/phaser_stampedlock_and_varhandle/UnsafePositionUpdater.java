@@ -0,0 +1,28 @@
+package com.chriniko.phaser_stampedlock_and_varhandle;
+
+import sun.misc.Unsafe;
+
+import java.lang.reflect.Field;
+
+class UnsafePositionUpdater implements PositionUpdater {
+
+    @Override
+    public boolean compareAndSet(Position position, double[] expected, double[] next) {
+        return UNSAFE.compareAndSwapObject(position, XY_MEMORY_OFFSET, expected, next);
+    }
+
+    private static final Unsafe UNSAFE;
+    private static final long XY_MEMORY_OFFSET;
+
+    static {
+        try {
+            Field f = Unsafe.class.getDeclaredField("theUnsafe");
+            f.setAccessible(true);
+            UNSAFE = (Unsafe) f.get(null);
+
+            XY_MEMORY_OFFSET = UNSAFE.objectFieldOffset(Position.class.getDeclaredField("xy"));
+        } catch (ReflectiveOperationException e) {
+            throw new Error(e);
+        }
+    }
+}
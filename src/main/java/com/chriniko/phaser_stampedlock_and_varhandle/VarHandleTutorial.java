@@ -1,106 +1,147 @@
 package com.chriniko.phaser_stampedlock_and_varhandle;
 
-import sun.misc.Unsafe;
-
-import java.lang.invoke.MethodHandles;
-import java.lang.invoke.VarHandle;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
 import java.lang.management.ManagementFactory;
-import java.lang.management.ThreadMXBean;
-import java.lang.reflect.Field;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
 public class VarHandleTutorial {
 
-    private static final ThreadMXBean tmbean = ManagementFactory.getThreadMXBean();
-
     private static final int REPEATS = 10;
 
-    private static LongAccumulator bestMoveThread = new LongAccumulator(Long::max, 0);
-    private static LongAccumulator bestDistanceThread = new LongAccumulator(Long::max, 0);
+    private static final String TOTAL_MOVES = "total moveBy() calls: ";
 
-    private static LongAccumulator worstMoveThread = new LongAccumulator(Long::min, Long.MAX_VALUE);
-    private static LongAccumulator worstDistanceThread = new LongAccumulator(Long::min, Long.MAX_VALUE);
+    /**
+     * Note: every updater is benchmarked in its own forked JVM, so that one updater does not warm up the JIT
+     * for the other, or turns the {@code Position.moveBy} call site into a bimorphic one.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
 
-    public static void main(String[] args) throws InterruptedException {
+        if (args.length == 1) { // Note: forked JVM, benchmark only the given updater.
+            test(updater(args[0]));
+            return;
+        }
 
         System.out.println("c/e = cpu time / elapsed time");
         System.out.println("s/e = system cpu time / elapsed time");
         System.out.println("u/e = user cpu time / elapsed time");
 
-        for (int i = 0; i < REPEATS; i++) {
-            new PositionTest().test();
+        PositionUpdater preferred = PositionUpdaters.preferred();
+        long preferredMoves = -1;
+        PositionUpdater fastest = null;
+        long fastestMoves = -1;
+
+        for (PositionUpdater updater : PositionUpdaters.available()) {
+            long totalMoves = fork(updater);
+
+            if (updater == preferred) {
+                preferredMoves = totalMoves;
+            }
+            if (totalMoves > fastestMoves) {
+                fastestMoves = totalMoves;
+                fastest = updater;
+            }
         }
 
         System.out.println();
-        System.out.println("Best values:");
-        System.out.printf(Locale.US, "\tmoveBy()        %,d%n", bestMoveThread.longValue());
-        System.out.printf(Locale.US, "\tdistanceFromOrigin()         %,d%n", bestDistanceThread.longValue());
-        System.out.println("Worst values:");
-        System.out.printf(Locale.US, "\tmoveBy()        %,d%n", worstMoveThread.longValue());
-        System.out.printf(Locale.US, "\tdistanceFromOrigin()         %,d%n", worstDistanceThread.longValue());
-
+        System.out.println("Java " + System.getProperty("java.specification.version")
+                + ", updaters available: " + PositionUpdaters.available().size()
+                + ", preferred updater: " + preferred.name() + ", fastest updater: " + fastest.name());
+        System.out.printf(Locale.US, "preferred / fastest total moveBy() calls = %.1f%%%n",
+                100D * preferredMoves / fastestMoves);
     }
 
+    private static PositionUpdater updater(String name) {
+        return PositionUpdaters.available()
+                .stream()
+                .filter(updater -> updater.name().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("unknown updater: " + name));
+    }
 
-    // ---
+    private static void test(PositionUpdater updater) throws InterruptedException {
+        System.out.println();
+        System.out.println("Updater: " + updater.name());
 
-    static class Position {
+        PositionTest.test(updater, new Scores()); // Note: warm up, results are discarded.
 
-        private volatile double[] xy = new double[2];
-        private final long xyMemoryOffset;
+        Scores scores = new Scores();
+        for (int i = 0; i < REPEATS; i++) {
+            PositionTest.test(updater, scores);
+        }
+        scores.print();
 
-        public Position(double x, double y) {
-            xy[0] = x;
-            xy[1] = y;
+        System.out.println(TOTAL_MOVES + scores.totalMoves.sum());
+    }
 
-            try {
-                xyMemoryOffset = UNSAFE.objectFieldOffset(Position.class.getDeclaredField("xy"));
-            } catch (NoSuchFieldException e) {
-                throw new Error(e);
+    private static long fork(PositionUpdater updater) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        for (String jvmArgument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            // Note: the forked JVMs should not overwrite our recording or bind the same debugger port.
+            if (!jvmArgument.startsWith("-XX:StartFlightRecording") && !jvmArgument.startsWith("-agentlib:jdwp")) {
+                command.add(jvmArgument);
+            }
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(VarHandleTutorial.class.getName());
+        command.add(updater.name());
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+
+        long totalMoves = -1;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                System.out.println(line);
+                if (line.startsWith(TOTAL_MOVES)) {
+                    totalMoves = Long.parseLong(line.substring(TOTAL_MOVES.length()));
+                }
             }
         }
 
-        public void moveBy(double deltaX, double deltaY) {
-            var current = xy;
-            var next = new double[]{0, 0};
-            do {
-                next[0] = current[0] + deltaX;
-                next[1] = current[1] + deltaY;
-            } while (!XY.compareAndSet(this, current, next));
+        int exitCode = process.waitFor();
+        if (exitCode != 0 || totalMoves < 0) {
+            throw new IllegalStateException("benchmark of " + updater.name() + " failed, exit code: " + exitCode);
         }
+        return totalMoves;
+    }
 
-        public void moveByUsingUnsafe(double deltaX, double deltaY) {
-            var current = xy;
-            var next = new double[2];
-            do {
-                next[0] = current[0] + deltaX;
-                next[1] = current[1] + deltaY;
-            } while (!UNSAFE.compareAndSwapObject(this, xyMemoryOffset, current, next));
+    // ---
 
-        }
+    static class Scores {
 
-        public double distanceFromOrigin() {
-            var current = xy;
-            return Math.hypot(current[0], current[1]);
-        }
+        final LongAccumulator bestMoveThread = new LongAccumulator(Long::max, 0);
+        final LongAccumulator bestDistanceThread = new LongAccumulator(Long::max, 0);
 
+        final LongAccumulator worstMoveThread = new LongAccumulator(Long::min, Long.MAX_VALUE);
+        final LongAccumulator worstDistanceThread = new LongAccumulator(Long::min, Long.MAX_VALUE);
 
-        private final static Unsafe UNSAFE;
-        private final static VarHandle XY;
+        final LongAdder totalMoves = new LongAdder();
 
-        static {
-            try {
-                Field f = Unsafe.class.getDeclaredField("theUnsafe");
-                f.setAccessible(true);
-                UNSAFE = (Unsafe) f.get(null);
+        final ThreadResourceProbe.Aggregate moveUsage = new ThreadResourceProbe.Aggregate("moveBy()");
+        final ThreadResourceProbe.Aggregate distanceUsage = new ThreadResourceProbe.Aggregate("distanceFromOrigin()");
 
-                XY = MethodHandles.lookup().findVarHandle(Position.class, "xy", double[].class);
-            } catch (ReflectiveOperationException e) {
-                throw new Error(e);
-            }
+        void print() {
+            System.out.println();
+            System.out.println("Best values:");
+            System.out.printf(Locale.US, "\tmoveBy()        %,d%n", bestMoveThread.longValue());
+            System.out.printf(Locale.US, "\tdistanceFromOrigin()         %,d%n", bestDistanceThread.longValue());
+            System.out.println("Worst values:");
+            System.out.printf(Locale.US, "\tmoveBy()        %,d%n", worstMoveThread.longValue());
+            System.out.printf(Locale.US, "\tdistanceFromOrigin()         %,d%n", worstDistanceThread.longValue());
+            System.out.println("Resource usage:");
+            moveUsage.print();
+            distanceUsage.print();
         }
     }
 
@@ -108,8 +149,11 @@ public class VarHandleTutorial {
 
     static class PositionTest {
 
-        static void test() throws InterruptedException {
-            Position position = new Position(0, 0);
+        static void test(PositionUpdater updater, Scores scores) throws InterruptedException {
+            // Note: the preferred updater is measured through the default Position, as callers get it on this runtime.
+            Position position = updater == PositionUpdaters.preferred()
+                    ? new Position(0, 0)
+                    : new Position(0, 0, updater);
             AtomicBoolean testing = new AtomicBoolean(true);
 
             Thread[] threads = {
@@ -117,40 +161,35 @@ public class VarHandleTutorial {
                     new Thread(() -> {
                         double[] moves = ThreadLocalRandom.current().doubles(1024, -100, +100).toArray();
 
-                        long time = System.currentTimeMillis();
-                        long userTime = tmbean.getCurrentThreadUserTime();
-                        long cpuTime = tmbean.getCurrentThreadCpuTime();
+                        BenchmarkEvents.PositionTestRunEvent event = BenchmarkEvents.JFR ? new BenchmarkEvents.PositionTestRunEvent() : null;
+                        ThreadResourceProbe probe = ThreadResourceProbe.start();
+                        if (event != null) event.begin();
 
                         long count = 0;
                         int pos = 0;
 
                         while (testing.get()) {
-                            //position.moveBy(moves[pos++ & 1023], moves[pos++ & 1023]);
-                            position.moveByUsingUnsafe(moves[pos++ & 1023], moves[pos++ & 1023]);
+                            position.moveBy(moves[pos++ & 1023], moves[pos++ & 1023]);
 
                             count++;
                         }
 
-                        bestMoveThread.accumulate(count);
-                        worstMoveThread.accumulate(count);
+                        if (event != null) event.end();
+                        ThreadResourceProbe.Usage usage = probe.stop(count);
 
-                        time = System.currentTimeMillis() - time;
-                        userTime = tmbean.getCurrentThreadUserTime() - userTime;
-                        cpuTime = tmbean.getCurrentThreadCpuTime() - cpuTime;
+                        scores.bestMoveThread.accumulate(count);
+                        scores.worstMoveThread.accumulate(count);
+                        scores.totalMoves.add(count);
+                        scores.moveUsage.add(usage);
 
-                        System.out.printf(Locale.US, "move() called %,d times, c/e=%d%%, u/e=%d%%, s/e=%d%%%n",
-                                count,
-                                (cpuTime / time) / 10_000,
-                                userTime / time / 10_000,
-                                (cpuTime - userTime) / time / 10_000
-                        );
+                        report(event, updater, "move()", usage);
 
                     }, "moveThread"),
 
                     new Thread(() -> {
-                        long time = System.currentTimeMillis();
-                        long userTime = tmbean.getCurrentThreadUserTime();
-                        long cpuTime = tmbean.getCurrentThreadCpuTime();
+                        BenchmarkEvents.PositionTestRunEvent event = BenchmarkEvents.JFR ? new BenchmarkEvents.PositionTestRunEvent() : null;
+                        ThreadResourceProbe probe = ThreadResourceProbe.start();
+                        if (event != null) event.begin();
 
                         long count = 0;
                         double totalDistance = 0;
@@ -159,19 +198,15 @@ public class VarHandleTutorial {
                             totalDistance += position.distanceFromOrigin();
                             count++;
                         }
-                        bestDistanceThread.accumulate(count);
-                        worstDistanceThread.accumulate(count);
-
-                        time = System.currentTimeMillis() - time;
-                        userTime = tmbean.getCurrentThreadUserTime() - userTime;
-                        cpuTime = tmbean.getCurrentThreadCpuTime() - cpuTime;
-
-                        System.out.printf(Locale.US, "distanceFromOrigin() called %,d times, c/e=%d%%, u/e=%d%%, s/e=%d%%%n",
-                                count,
-                                (cpuTime / time) / 10_000,
-                                userTime / time / 10_000,
-                                (cpuTime - userTime) / time / 10_000
-                        );
+
+                        if (event != null) event.end();
+                        ThreadResourceProbe.Usage usage = probe.stop(count);
+
+                        scores.bestDistanceThread.accumulate(count);
+                        scores.worstDistanceThread.accumulate(count);
+                        scores.distanceUsage.add(usage);
+
+                        report(event, updater, "distanceFromOrigin()", usage);
                     }, "distanceFromOriginThread"),
 
             };
@@ -190,6 +225,39 @@ public class VarHandleTutorial {
 
         }
 
+        private static void report(BenchmarkEvents.PositionTestRunEvent event,
+                                   PositionUpdater updater, String operation, ThreadResourceProbe.Usage usage) {
+            if (event != null && event.shouldCommit()) {
+                event.updater = updater.name();
+                event.operation = operation;
+                event.count = usage.getOperations();
+                event.cpuRatio = usage.cpuRatio();
+                event.userSystemSplit = usage.hasUserSystemSplit();
+                if (usage.hasUserSystemSplit()) {
+                    event.userRatio = usage.userRatio();
+                    event.systemRatio = usage.systemRatio();
+                }
+                event.allocatedBytes = usage.getAllocatedBytes();
+                event.contextSwitches = usage.getContextSwitches();
+                event.commit();
+            }
+
+            if (BenchmarkEvents.CONSOLE) {
+                String split = usage.hasUserSystemSplit()
+                        ? String.format(Locale.US, "u/e=%.0f%%, s/e=%.0f%%", usage.userRatio() * 100, usage.systemRatio() * 100)
+                        : "u/e, s/e n/a";
+
+                System.out.printf(Locale.US, "%s called %,d times, c/e=%.0f%%, %s, bytes/op=%,.2f, context switches=%,d%n",
+                        operation,
+                        usage.getOperations(),
+                        usage.cpuRatio() * 100,
+                        split,
+                        usage.allocatedBytesPerOperation(),
+                        usage.getContextSwitches()
+                );
+            }
+        }
+
     }
 
 
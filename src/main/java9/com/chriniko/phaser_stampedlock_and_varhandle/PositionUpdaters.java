@@ -0,0 +1,26 @@
+package com.chriniko.phaser_stampedlock_and_varhandle;
+
+import java.util.List;
+
+/**
+ * Java 9+ version, prefers the VarHandle CAS, the Unsafe one is still available for comparison.
+ * <p>
+ * Note: the two are within a few percent of each other (see VarHandleTutorial for the numbers of a runtime), so we stay
+ * with the VarHandle, as the sun.misc.Unsafe memory access methods are deprecated for removal (JEP 471).
+ */
+final class PositionUpdaters {
+
+    private static final PositionUpdater UNSAFE = new UnsafePositionUpdater();
+    private static final PositionUpdater VAR_HANDLE = new VarHandlePositionUpdater();
+
+    private PositionUpdaters() {
+    }
+
+    static PositionUpdater preferred() {
+        return VAR_HANDLE;
+    }
+
+    static List<PositionUpdater> available() {
+        return List.of(UNSAFE, VAR_HANDLE);
+    }
+}
@@ -0,0 +1,22 @@
+package com.chriniko.phaser_stampedlock_and_varhandle;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+class VarHandlePositionUpdater implements PositionUpdater {
+
+    @Override
+    public boolean compareAndSet(Position position, double[] expected, double[] next) {
+        return XY.compareAndSet(position, expected, next);
+    }
+
+    private static final VarHandle XY;
+
+    static {
+        try {
+            XY = MethodHandles.lookup().findVarHandle(Position.class, "xy", double[].class);
+        } catch (ReflectiveOperationException e) {
+            throw new Error(e);
+        }
+    }
+}